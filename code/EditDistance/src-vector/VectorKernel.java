@@ -0,0 +1,33 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Diagonal kernel using the incubating Vector API. Kept out of src so the
+ * rest of the tree builds without jdk.incubator.vector; see EditDistance
+ * for how to build it.
+ */
+class VectorKernel implements EditDistance.Kernel {
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	@Override
+	public void doChunk(int[] maxSeq, int[] minSeq, int[] prev2, int[] prev, int[] current,
+			int offset, int startIdx, int stopIdx) {
+		int j = startIdx;
+		int upperBound = startIdx + SPECIES.loopBound(stopIdx - startIdx);
+		for (; j < upperBound; j += SPECIES.length()) {
+			IntVector left = IntVector.fromArray(SPECIES, prev, j);
+			IntVector down = IntVector.fromArray(SPECIES, prev, j + 1);
+			IntVector diagonal = IntVector.fromArray(SPECIES, prev2, j + 1);
+			VectorMask<Integer> mismatch = IntVector.fromArray(SPECIES, maxSeq, j + offset)
+					.compare(VectorOperators.NE, IntVector.fromArray(SPECIES, minSeq, j));
+			diagonal = diagonal.add(1, mismatch);
+			left.min(down).add(1).min(diagonal).intoArray(current, j);
+		}
+		for (; j < stopIdx; j++) {
+			int diagonal = prev2[j + 1] + ((maxSeq[j + offset] == minSeq[j]) ? 0 : 1);
+			current[j] = Math.min(Math.min(prev[j], prev[j + 1]) + 1, diagonal);
+		}
+	}
+}
@@ -5,18 +5,39 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+/**
+ * Parallel edit distance over the anti-diagonals of the DP table.
+ *
+ * The per-cell kernel is scalar unless VectorKernel, which needs the
+ * incubating Vector API, is on the classpath and the module is resolved:
+ *
+ *   javac -d out src/*.java
+ *   javac --add-modules jdk.incubator.vector -cp out -d out src-vector/*.java
+ *   java --add-modules jdk.incubator.vector -cp out EditDistance
+ *
+ * Skipping the second step, or running without --add-modules, uses the
+ * scalar kernel.
+ */
 public class EditDistance {
 	private static final int MIN_CHUNK_SIZE = 5;
+	private static final Kernel KERNEL = loadKernel();
 	private final ExecutorService threadPool;
 	private final int threadCount;
-	private final String maxStr;
-	private final String minStr;
 	private final int maxLen;
 	private final int minLen;
+	private final int[] maxSeq;
+	// The shorter string reversed, so it is read forwards along a diagonal
+	private final int[] minSeq;
 
 	public EditDistance(String s1, String s2, int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("threadCount must be positive: " + threadCount);
+		}
 		this.threadCount = threadCount;
-		threadPool = Executors.newFixedThreadPool(threadCount);
+		// With a single thread every diagonal is computed inline
+		threadPool = (threadCount == 1) ? null : Executors.newFixedThreadPool(threadCount);
+		String maxStr;
+		String minStr;
 		if (s1.length() < s2.length()) {
 			minStr = s1;
 			maxStr = s2;
@@ -26,36 +47,66 @@ public class EditDistance {
 		}
 		maxLen = maxStr.length();
 		minLen = minStr.length();
+		maxSeq = toSeq(maxStr, false);
+		minSeq = toSeq(minStr, true);
+	}
+
+	/**
+	 * Computes the distance on the calling thread, without a thread pool.
+	 */
+	public static int editDist(String s1, String s2) {
+		return new EditDistance(s1, s2, 1).editDist();
 	}
 
+	/**
+	 * Walks the anti-diagonals of the DP table. Cells on a diagonal are
+	 * indexed by j = minLen - 1 - y, so the neighbours of cell j are
+	 * prev[j] (left), prev[j+1] (down) and prev2[j+1] (diagonal), and
+	 * both strings are read with increasing indices. Slot minLen and slot
+	 * minLen - 2 - d hold the row/column boundary, which is d + 2 on
+	 * diagonal d, so the kernels never need to test bounds.
+	 */
 	public int editDist() {
-		int iterations = maxLen + minLen - 1;
-		int[] prev = new int[0];
-		int[] current = null;
+		if (minLen == 0) {
+			return maxLen;
+		}
+		int[] prev2 = new int[minLen + 1];
+		int[] prev = new int[minLen + 1];
+		int[] current = new int[minLen + 1];
+		// Diagonals -2 and -1 consist only of boundary cells
+		prev2[minLen] = 0;
+		prev[minLen - 1] = 1;
+		prev[minLen] = 1;
 
-		for (int i = 0; i < iterations; i++) {
-			int currentLen;
-			if (i < minLen) {
-				currentLen = i + 1;
-			} else if (i < maxLen) {
-				currentLen = minLen;
-			} else {
-				currentLen = iterations - i;
+		int iterations = maxLen + minLen - 1;
+		for (int d = 0; d < iterations; d++) {
+			current[minLen] = d + 2;
+			if (d <= minLen - 2) {
+				current[minLen - 2 - d] = d + 2;
 			}
-			
-			current = new int[currentLen*2 - 1];
-			parallelize(prev, current, currentLen, i);
+			int startIdx = Math.max(0, minLen - 1 - d);
+			int stopIdx = Math.min(minLen, iterations - d);
+			parallelize(prev2, prev, current, d - minLen + 1, startIdx, stopIdx);
+
+			int[] tmp = prev2;
+			prev2 = prev;
 			prev = current;
+			current = tmp;
 		}
-		return current[0];
+		return prev[0];
 	}
 
-	private void parallelize(int[] prev, int[] current, int currentLen, int iteration) {
-		int chunkSize = Math.max(current.length / threadCount, MIN_CHUNK_SIZE);
+	private void parallelize(int[] prev2, int[] prev, int[] current, int offset, int startIdx, int stopIdx) {
+		int chunkSize = Math.max((stopIdx - startIdx) / threadCount, MIN_CHUNK_SIZE);
+		if (stopIdx - startIdx <= chunkSize) {
+			// Not worth a round trip through the pool
+			KERNEL.doChunk(maxSeq, minSeq, prev2, prev, current, offset, startIdx, stopIdx);
+			return;
+		}
 		List<Future<?>> futures = new ArrayList<Future<?>>();
-		for (int i = 0; i < current.length; i += chunkSize) {
-			int stopIdx = Math.min(currentLen, i + chunkSize);
-			Runnable worker = new Worker(prev, current, currentLen, iteration, i, stopIdx);
+		for (int i = startIdx; i < stopIdx; i += chunkSize) {
+			int chunkStop = Math.min(stopIdx, i + chunkSize);
+			Runnable worker = new Worker(prev2, prev, current, offset, i, chunkStop);
 			futures.add(threadPool.submit(worker));
 		}
 		for (Future<?> future : futures) {
@@ -73,74 +124,73 @@ public class EditDistance {
 			}
 		}
 	}
-	
-	private void doChunk(int[] prev, int[] current, int currentLen, int iteration, int startIdx, int stopIdx) {
-		int mergeStartIdx = (iteration < minLen) ? 0 : 2;
-		
-		for (int i = startIdx; i < stopIdx; i++) {
-			// Edit distance 
-			int x;
-			int y;
-			int leftIdx;
-			int downIdx;
-			int diagonalIdx;
-			if (iteration < minLen) {
-				x = i;
-				y = currentLen - i - 1;
-				leftIdx = i * 2 - 2;
-				downIdx = i * 2;
-				diagonalIdx = i * 2 - 1;
-			} else {
-				x = i + iteration - minLen + 1;
-				y = minLen - i - 1;
-				leftIdx = i * 2;
-				downIdx = i * 2 + 2;
-				diagonalIdx = i * 2 + 1;
-			}
-			int left = 1 + ((leftIdx < 0) ? iteration + 1 : prev[leftIdx]);
-			int down = 1 + ((downIdx < prev.length) ? prev[downIdx]
-					: iteration + 1);
-			int diagonal = penalty(x, y)
-					+ ((diagonalIdx < 0 || diagonalIdx >= prev.length) ? iteration
-							: prev[diagonalIdx]);
-			int dist = Math.min(left, Math.min(down, diagonal));
-			current[i*2] = dist;
-			
-			// Merge prev
-			int mergeIdx = i*2 + 1;
-			if (mergeIdx < current.length) {
-				current[mergeIdx] = prev[mergeStartIdx + i*2];
-			}
+
+	private static Kernel loadKernel() {
+		try {
+			// VectorKernel only links when jdk.incubator.vector is resolved,
+			// e.g. when run with --add-modules jdk.incubator.vector
+			return (Kernel) Class.forName("VectorKernel").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			return new ScalarKernel();
+		} catch (LinkageError e) {
+			return new ScalarKernel();
 		}
 	}
 
-	private int penalty(int maxIdx, int minIdx) {
-		return (maxStr.charAt(maxIdx) == minStr.charAt(minIdx)) ? 0 : 1;
+	private static int[] toSeq(String s, boolean reverse) {
+		int len = s.length();
+		int[] seq = new int[len];
+		for (int i = 0; i < len; i++) {
+			seq[i] = s.charAt(reverse ? len - 1 - i : i);
+		}
+		return seq;
 	}
-	
+
 	public void shutdown() {
-		threadPool.shutdown();
+		if (threadPool != null) {
+			threadPool.shutdown();
+		}
 	}
 	
+	/**
+	 * Computes cells [startIdx, stopIdx) of a diagonal. Cell j compares
+	 * maxSeq[j + offset] against minSeq[j].
+	 */
+	interface Kernel {
+		void doChunk(int[] maxSeq, int[] minSeq, int[] prev2, int[] prev, int[] current,
+				int offset, int startIdx, int stopIdx);
+	}
+
+	static class ScalarKernel implements Kernel {
+		@Override
+		public void doChunk(int[] maxSeq, int[] minSeq, int[] prev2, int[] prev, int[] current,
+				int offset, int startIdx, int stopIdx) {
+			for (int j = startIdx; j < stopIdx; j++) {
+				int diagonal = prev2[j + 1] + ((maxSeq[j + offset] == minSeq[j]) ? 0 : 1);
+				current[j] = Math.min(Math.min(prev[j], prev[j + 1]) + 1, diagonal);
+			}
+		}
+	}
+
 	private class Worker implements Runnable {
+		private final int[] prev2;
 		private final int[] prev;
 		private final int[] current;
-		private final int currentLen;
-		private final int iteration;
+		private final int offset;
 		private final int startIdx;
 		private final int stopIdx;
-		Worker(int[] prev, int[] current, int currentLen, int iteration, int startIdx, int stopIdx) {
+		Worker(int[] prev2, int[] prev, int[] current, int offset, int startIdx, int stopIdx) {
+			this.prev2 = prev2;
 			this.prev = prev;
 			this.current = current;
-			this.currentLen = currentLen;
-			this.iteration = iteration;
+			this.offset = offset;
 			this.startIdx = startIdx;
 			this.stopIdx = stopIdx;
 		}
 		
 		@Override
 		public void run() {
-			doChunk(prev, current, currentLen, iteration, startIdx, stopIdx);
+			KERNEL.doChunk(maxSeq, minSeq, prev2, prev, current, offset, startIdx, stopIdx);
 		}
 	}
 	
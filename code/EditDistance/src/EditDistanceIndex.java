@@ -0,0 +1,262 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Nearest neighbour lookups under edit distance. Words are kept in a
+ * BK-tree: every child of a node sits at a fixed distance from it, so by
+ * the triangle inequality a query at distance d from a node with radius r
+ * only needs the children in [d - r, d + r].
+ *
+ * A leaf's distance only matters if it is a match, so leaves are first
+ * checked against a cheap lower bound from the lengths and shared bigrams
+ * of the two words, and the full distance is skipped when that bound
+ * already exceeds the radius.
+ *
+ * Queries may run concurrently with each other; inserts take an exclusive
+ * lock.
+ */
+public class EditDistanceIndex {
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Node root;
+	private int size;
+
+	public static class Match {
+		private final String word;
+		private final int distance;
+
+		Match(String word, int distance) {
+			this.word = word;
+			this.distance = distance;
+		}
+
+		public String getWord() {
+			return word;
+		}
+
+		public int getDistance() {
+			return distance;
+		}
+
+		@Override
+		public String toString() {
+			return word + "=" + distance;
+		}
+	}
+
+	private static final Comparator<Match> BY_DISTANCE = new Comparator<Match>() {
+		@Override
+		public int compare(Match m1, Match m2) {
+			return Integer.compare(m1.distance, m2.distance);
+		}
+	};
+
+	/**
+	 * Adds a word to the index. Returns false if it was already present.
+	 */
+	public boolean add(String word) {
+		Node node = new Node(word);
+		lock.writeLock().lock();
+		try {
+			if (root == null) {
+				root = node;
+				size++;
+				return true;
+			}
+			Node current = root;
+			while (true) {
+				int dist = EditDistance.editDist(word, current.word);
+				if (dist == 0) {
+					return false;
+				}
+				Node child = current.children.get(dist);
+				if (child == null) {
+					current.children.put(dist, node);
+					size++;
+					return true;
+				}
+				current = child;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns every word within radius of the query, closest first.
+	 */
+	public List<Match> withinDistance(String query, int radius) {
+		Node target = new Node(query);
+		List<Match> matches = new ArrayList<Match>();
+		lock.readLock().lock();
+		try {
+			if (root == null) {
+				return matches;
+			}
+			Deque<Node> pending = new ArrayDeque<Node>();
+			pending.push(root);
+			while (!pending.isEmpty()) {
+				Node node = pending.pop();
+				if (node.children.isEmpty() && lowerBound(target, node) > radius) {
+					continue;
+				}
+				int dist = EditDistance.editDist(query, node.word);
+				if (dist <= radius) {
+					matches.add(new Match(node.word, dist));
+				}
+				pending.addAll(childrenInRange(node, dist, radius).values());
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		Collections.sort(matches, BY_DISTANCE);
+		return matches;
+	}
+
+	/**
+	 * Returns the k words closest to the query, closest first. Ties at the
+	 * k-th distance are broken arbitrarily.
+	 */
+	public List<Match> nearest(String query, int k) {
+		Node target = new Node(query);
+		PriorityQueue<Match> best = new PriorityQueue<Match>(Math.max(k, 1), Collections.reverseOrder(BY_DISTANCE));
+		lock.readLock().lock();
+		try {
+			if (root == null || k <= 0) {
+				return new ArrayList<Match>();
+			}
+			Deque<Node> pending = new ArrayDeque<Node>();
+			pending.push(root);
+			while (!pending.isEmpty()) {
+				Node node = pending.pop();
+				// Only strict improvements on the current k-th match count
+				int radius = (best.size() < k) ? Integer.MAX_VALUE : best.peek().distance - 1;
+				if (radius < 0) {
+					break;
+				}
+				if (node.children.isEmpty() && lowerBound(target, node) > radius) {
+					continue;
+				}
+				int dist = EditDistance.editDist(query, node.word);
+				if (dist <= radius) {
+					if (best.size() == k) {
+						best.poll();
+					}
+					best.add(new Match(node.word, dist));
+					radius = (best.size() < k) ? Integer.MAX_VALUE : best.peek().distance - 1;
+				}
+				pushNearestLast(pending, childrenInRange(node, dist, radius), dist);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		List<Match> matches = new ArrayList<Match>(best);
+		Collections.sort(matches, BY_DISTANCE);
+		return matches;
+	}
+
+	private static Map<Integer, Node> childrenInRange(Node node, int dist, int radius) {
+		if (radius < 0) {
+			return Collections.emptyMap();
+		}
+		int low = (int) Math.max((long) dist - radius, 0);
+		int high = (int) Math.min((long) dist + radius, Integer.MAX_VALUE);
+		return node.children.subMap(low, true, high, true);
+	}
+
+	/**
+	 * Pushes the children that may hold a word within radius, ordered so
+	 * the edge closest to dist is popped first; finding good matches early
+	 * shrinks the radius for the rest of the search.
+	 */
+	private static void pushNearestLast(Deque<Node> pending, Map<Integer, Node> inRange, int dist) {
+		List<Map.Entry<Integer, Node>> entries = new ArrayList<Map.Entry<Integer, Node>>(inRange.entrySet());
+		final int center = dist;
+		Collections.sort(entries, new Comparator<Map.Entry<Integer, Node>>() {
+			@Override
+			public int compare(Map.Entry<Integer, Node> e1, Map.Entry<Integer, Node> e2) {
+				return Integer.compare(Math.abs(e2.getKey() - center), Math.abs(e1.getKey() - center));
+			}
+		});
+		for (Map.Entry<Integer, Node> entry : entries) {
+			pending.push(entry.getValue());
+		}
+	}
+
+	/**
+	 * A lower bound on the edit distance. Besides the length difference,
+	 * each edit destroys at most 2 of the bigrams of the longer word, so
+	 * words within distance k share at least maxLen - 1 - 2k bigrams.
+	 */
+	private static int lowerBound(Node n1, Node n2) {
+		int len1 = n1.word.length();
+		int len2 = n2.word.length();
+		int lengthBound = Math.abs(len1 - len2);
+		int missing = Math.max(len1, len2) - 1 - sharedGrams(n1.grams, n2.grams);
+		int gramBound = (missing + 1) / 2;
+		return Math.max(lengthBound, gramBound);
+	}
+
+	private static int sharedGrams(int[] g1, int[] g2) {
+		int shared = 0;
+		int i = 0;
+		int j = 0;
+		while (i < g1.length && j < g2.length) {
+			if (g1[i] == g2[j]) {
+				shared++;
+				i++;
+				j++;
+			} else if (g1[i] < g2[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return shared;
+	}
+
+	private static class Node {
+		final String word;
+		// Sorted bigrams, each packed from two chars into one int
+		final int[] grams;
+		final TreeMap<Integer, Node> children = new TreeMap<Integer, Node>();
+
+		Node(String word) {
+			this.word = word;
+			int count = Math.max(word.length() - 1, 0);
+			grams = new int[count];
+			for (int i = 0; i < count; i++) {
+				grams[i] = (word.charAt(i) << 16) | word.charAt(i + 1);
+			}
+			Arrays.sort(grams);
+		}
+	}
+
+	public static void main(String args[]) {
+		EditDistanceIndex index = new EditDistanceIndex();
+		for (String word : new String[] { "Saturday", "Sunday", "Monday", "Tuesday",
+				"Wednesday", "Thursday", "Friday", "Someday", "Sundae" }) {
+			index.add(word);
+		}
+		System.out.println(index.withinDistance("Sunday", 2));
+		System.out.println(index.nearest("Thursday", 3));
+	}
+}
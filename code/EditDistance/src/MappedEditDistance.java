@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Edit distance over raw bytes, for inputs too large to hold as Strings.
+ * The longer input is streamed once, a row of the DP table at a time, so
+ * only the shorter input and one row of state (O(min(n, m))) live on the
+ * heap. Files are memory-mapped; the longer one in segments, so it may
+ * exceed both the heap and the 2GB limit of a single mapping.
+ */
+public class MappedEditDistance {
+	private static final long SEGMENT_SIZE = 1L << 30;
+	private static final int PROGRESS_STEPS = 1000;
+
+	public interface ProgressListener {
+		/**
+		 * Called periodically, and once on completion, with the number of
+		 * bytes of the longer input processed so far.
+		 */
+		void progress(long done, long total);
+	}
+
+	private final byte[] minBytes;
+	private final long maxLen;
+	private final ProgressListener listener;
+	private final long reportInterval;
+	// row[j] holds dist(max[0..i), min[0..j)) - i, which always fits in
+	// [-minLen, minLen] even when the distance itself needs a long
+	private final int[] row;
+	private long rowsDone;
+	private long nextReport;
+	private long lastReported = -1;
+
+	private MappedEditDistance(byte[] minBytes, long maxLen, ProgressListener listener) {
+		this.minBytes = minBytes;
+		this.maxLen = maxLen;
+		this.listener = listener;
+		reportInterval = Math.max(1, maxLen / PROGRESS_STEPS);
+		nextReport = reportInterval;
+		row = new int[minBytes.length + 1];
+		for (int j = 0; j < row.length; j++) {
+			row[j] = j;
+		}
+	}
+
+	public static long editDist(Path p1, Path p2, ProgressListener listener) throws IOException {
+		try (FileChannel c1 = FileChannel.open(p1, StandardOpenOption.READ);
+				FileChannel c2 = FileChannel.open(p2, StandardOpenOption.READ)) {
+			FileChannel minChannel = c1;
+			FileChannel maxChannel = c2;
+			if (c1.size() > c2.size()) {
+				minChannel = c2;
+				maxChannel = c1;
+			}
+			long minSize = minChannel.size();
+			long maxSize = maxChannel.size();
+			if (minSize > Integer.MAX_VALUE - 1) {
+				throw new IllegalArgumentException("Shorter input is too large: " + minSize + " bytes");
+			}
+			byte[] minBytes = new byte[(int) minSize];
+			if (minSize > 0) {
+				minChannel.map(FileChannel.MapMode.READ_ONLY, 0, minSize).get(minBytes);
+			}
+
+			MappedEditDistance ed = new MappedEditDistance(minBytes, maxSize, listener);
+			for (long pos = 0; pos < maxSize; pos += SEGMENT_SIZE) {
+				long len = Math.min(SEGMENT_SIZE, maxSize - pos);
+				MappedByteBuffer segment = maxChannel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+				ed.consume(segment);
+			}
+			return ed.finish();
+		}
+	}
+
+	/**
+	 * Compares the remaining bytes of two buffers. Neither buffer's
+	 * position is modified.
+	 */
+	public static long editDist(ByteBuffer b1, ByteBuffer b2, ProgressListener listener) {
+		ByteBuffer minBuf = b1.duplicate();
+		ByteBuffer maxBuf = b2.duplicate();
+		if (minBuf.remaining() > maxBuf.remaining()) {
+			minBuf = b2.duplicate();
+			maxBuf = b1.duplicate();
+		}
+		byte[] minBytes = new byte[minBuf.remaining()];
+		minBuf.get(minBytes);
+
+		MappedEditDistance ed = new MappedEditDistance(minBytes, maxBuf.remaining(), listener);
+		ed.consume(maxBuf);
+		return ed.finish();
+	}
+
+	private void consume(ByteBuffer maxPart) {
+		byte[] min = minBytes;
+		int[] row = this.row;
+		int minLen = min.length;
+		for (int pos = maxPart.position(), limit = maxPart.limit(); pos < limit; pos++) {
+			byte b = maxPart.get(pos);
+			// Relative to the new row index, the left column is always 0
+			// and the costs of the three moves shift by -1 for the
+			// cells taken from the previous row
+			int diagonal = row[0];
+			int left = 0;
+			row[0] = 0;
+			for (int j = 0; j < minLen; j++) {
+				int up = row[j + 1];
+				int dist = Math.min(left + 1, Math.min(up, diagonal + ((b == min[j]) ? -1 : 0)));
+				row[j + 1] = dist;
+				left = dist;
+				diagonal = up;
+			}
+			rowsDone++;
+			if (rowsDone >= nextReport) {
+				nextReport += reportInterval;
+				report();
+			}
+		}
+	}
+
+	private void report() {
+		if (listener != null) {
+			listener.progress(rowsDone, maxLen);
+		}
+		lastReported = rowsDone;
+	}
+
+	private long finish() {
+		if (lastReported != rowsDone) {
+			report();
+		}
+		return rowsDone + row[minBytes.length];
+	}
+
+	public static void main(String args[]) throws IOException {
+		if (args.length != 2) {
+			System.err.println("usage: MappedEditDistance <file1> <file2>");
+			System.exit(1);
+		}
+		long dist = editDist(Path.of(args[0]), Path.of(args[1]), new ProgressListener() {
+			@Override
+			public void progress(long done, long total) {
+				System.err.printf("\r%d/%d bytes", done, total);
+			}
+		});
+		System.err.println();
+		System.out.println(dist);
+	}
+}